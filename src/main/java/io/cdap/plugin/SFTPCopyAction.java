@@ -28,10 +28,16 @@ import io.cdap.cdap.api.annotation.Plugin;
 import io.cdap.cdap.api.dataset.lib.KeyValue;
 import io.cdap.cdap.etl.api.action.Action;
 import io.cdap.cdap.etl.api.action.ActionContext;
+import io.cdap.plugin.common.ExecRemoteFileLister;
 import io.cdap.plugin.common.KeyValueListParser;
+import io.cdap.plugin.common.RemoteFile;
+import io.cdap.plugin.common.RemoteFileLister;
 import io.cdap.plugin.common.SFTPActionConfig;
 import io.cdap.plugin.common.SFTPConnector;
 import io.cdap.plugin.common.SFTPConstants;
+import io.cdap.plugin.common.SFTPRemoteFileLister;
+import io.cdap.plugin.common.TransferProgress;
+import io.cdap.plugin.common.TransferScheduler;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
@@ -42,12 +48,11 @@ import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Vector;
+import java.util.stream.Collectors;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 import javax.annotation.Nullable;
@@ -59,6 +64,9 @@ import javax.annotation.Nullable;
 @Name("SFTPCopy")
 public class SFTPCopyAction extends Action {
   private static final Logger LOG = LoggerFactory.getLogger(SFTPCopyAction.class);
+  private static final String TRANSFERRED_FILES_COUNT = "sftp.copy.transferred.files.count";
+  private static final String TRANSFERRED_BYTES = "sftp.copy.transferred.bytes";
+  private static final String TOTAL_BYTES = "sftp.copy.total.bytes";
   private SFTPCopyActionConfig config;
 
   public SFTPCopyAction(SFTPCopyActionConfig config) {
@@ -97,6 +105,19 @@ public class SFTPCopyAction extends Action {
     @Nullable
     public String fileSystemProperties;
 
+    @Description("Number of sftp channels used to copy files concurrently over the SSH connection. " +
+      "Files are copied largest first. Defaults to 1.")
+    @Nullable
+    @Macro
+    public Integer numTransferChannels;
+
+    @Description("Strategy used to list the files in the source directory. 'sftp' lists every directory with " +
+      "an sftp request. 'exec' lists the whole directory tree with a single 'find' command over an SSH exec " +
+      "channel, and falls back to 'sftp' if the server does not permit it. Defaults to 'sftp'.")
+    @Nullable
+    @Macro
+    public String listingStrategy;
+
     public String getSrcDirectory() {
       return srcDirectory;
     }
@@ -127,6 +148,30 @@ public class SFTPCopyAction extends Action {
       }
       return properties;
     }
+
+    public int getNumTransferChannels() {
+      if (numTransferChannels == null) {
+        return 1;
+      }
+      if (numTransferChannels < 1) {
+        throw new IllegalArgumentException(
+          String.format("Number of transfer channels must be at least 1, but was %d.", numTransferChannels));
+      }
+      return numTransferChannels;
+    }
+
+    public String getListingStrategy() {
+      if (Strings.isNullOrEmpty(listingStrategy)) {
+        return SFTPConstants.LISTING_STRATEGY_SFTP;
+      }
+      if (!SFTPConstants.LISTING_STRATEGY_SFTP.equals(listingStrategy) &&
+        !SFTPConstants.LISTING_STRATEGY_EXEC.equals(listingStrategy)) {
+        throw new IllegalArgumentException(
+          String.format("Listing strategy must be '%s' or '%s', but was '%s'.", SFTPConstants.LISTING_STRATEGY_SFTP,
+                        SFTPConstants.LISTING_STRATEGY_EXEC, listingStrategy));
+      }
+      return listingStrategy;
+    }
   }
 
   @Override
@@ -161,76 +206,73 @@ public class SFTPCopyAction extends Action {
   }
 
   /**
-   * copySFTPFiles recursively copies all files and subdirectories in a given directory.
+   * copySFTPFiles recursively lists all files and subdirectories in a given directory and then copies the files,
+   * largest first, over the configured number of sftp channels.
    *
    * @param fileSystem The destination file system to copy to
    * @param destination The destination base path to copy to
    * @param connector The SFTP connector to use
    * @param context The context for the action
-   * @throws SftpException If any SFTP errors occur
+   * @throws Exception If any SFTP or file system errors occur
    */
   private void copySFTPFiles(FileSystem fileSystem, Path destination, SFTPConnector connector,
-                             ActionContext context) throws SftpException, IOException {
-    ChannelSftp channel = connector.getSftpChannel();
-    ArrayList<String> filesCopied = new ArrayList<>();
-    Vector entries = channel.ls(config.getSrcDirectory());
-    for (Object obj : entries) {
-      if (!(obj instanceof ChannelSftp.LsEntry)) {
-        continue;
+                             ActionContext context) throws Exception {
+    List<FileToCopy> filesToCopy = new ArrayList<>();
+    getFileLister(connector).list(config.getSrcDirectory(), file -> {
+      // Ignore files that don't match the given file regex
+      if (!Strings.isNullOrEmpty(config.fileNameRegex) && !file.getName().matches(config.fileNameRegex)) {
+        LOG.debug("Skipping file {} since it does not match the regex.", file.getPath());
+        return false;
+      }
+      Path destinationPath = new Path(destination, file.getRelativePath());
+      if (file.isDirectory()) {
+        if (!fileSystem.exists(destinationPath)) {
+          fileSystem.mkdirs(destinationPath);
+        }
+      } else {
+        filesToCopy.add(new FileToCopy(file, fileSystem.makeQualified(destinationPath)));
       }
-      ChannelSftp.LsEntry entry = (ChannelSftp.LsEntry) obj;
-      recursiveSFTPCopy(channel, fileSystem, Paths.get(config.getSrcDirectory()), destination, filesCopied, entry);
+      return true;
+    });
+
+    TransferScheduler<FileToCopy> scheduler = new TransferScheduler<>(connector, config.getNumTransferChannels());
+    TransferProgress progress = TransferProgress.of(filesToCopy, FileToCopy::getSize);
+    try {
+      scheduler.run(filesToCopy, FileToCopy::getSize, progress,
+                    (sftpChannel, file) -> {
+                      copyFile(sftpChannel, fileSystem, file);
+                      return true;
+                    });
+    } finally {
+      context.getArguments().set(TRANSFERRED_FILES_COUNT, String.valueOf(progress.getFilesTransferred()));
+      context.getArguments().set(TRANSFERRED_BYTES, String.valueOf(progress.getBytesTransferred()));
+      context.getArguments().set(TOTAL_BYTES, String.valueOf(progress.getTotalBytes()));
     }
+
+    List<String> filesCopied = filesToCopy.stream().map(FileToCopy::getRemotePath).collect(Collectors.toList());
     context.getArguments().set(config.getVariableNameHoldingFileList(), Joiner.on(",").join(filesCopied));
     LOG.info("Variables copied to {}.", Joiner.on(",").join(filesCopied));
   }
 
-  private String getLongPath(java.nio.file.Path prefixPath, String fileName) {
-    return prefixPath.resolve(fileName).toString();
+  private RemoteFileLister getFileLister(SFTPConnector connector) {
+    if (SFTPConstants.LISTING_STRATEGY_EXEC.equals(config.getListingStrategy())) {
+      return new ExecRemoteFileLister(connector);
+    }
+    return new SFTPRemoteFileLister(connector.getSftpChannel());
   }
 
-  private void recursiveSFTPCopy(ChannelSftp channel, FileSystem fileSystem, java.nio.file.Path prefixPath,
-                                 Path destinationPath, List<String> filesCopied, ChannelSftp.LsEntry entry)
+  private void copyFile(ChannelSftp channel, FileSystem fileSystem, FileToCopy file)
     throws SftpException, IOException {
-    if (".".equals(entry.getFilename()) || "..".equals(entry.getFilename())) {
-      // ignore "." and ".." files
-      return;
-    }
-    // Ignore files that don't match the given file regex
-    if (!Strings.isNullOrEmpty(config.fileNameRegex)) {
-      if (!entry.getFilename().matches(config.fileNameRegex)) {
-        LOG.debug("Skipping file {} since it does not match the regex.", getLongPath(prefixPath, entry.getFilename()));
-        return;
+    if (config.getExtractZipFiles() && file.getFileName().endsWith(".zip")) {
+      LOG.debug("Downloading zip {} to {}", file.getFileName(), file.getDestination());
+      copyJschZip(channel.get(file.getRemotePath()), fileSystem, file.getDestination());
+    } else {
+      LOG.debug("Downloading {} to {}", file.getFileName(), file.getDestination().toString());
+      try (OutputStream output = fileSystem.create(file.getDestination())) {
+        InputStream is = channel.get(file.getRemotePath());
+        ByteStreams.copy(is, output);
       }
     }
-    if (entry.getAttrs().isDir()) {
-      Path subDirPath = new Path(destinationPath, entry.getFilename());
-      if (!fileSystem.exists(subDirPath)) {
-        fileSystem.mkdirs(subDirPath);
-      }
-      Vector entries = channel.ls(getLongPath(prefixPath, entry.getFilename()));
-      for (Object obj : entries) {
-        if (!(obj instanceof ChannelSftp.LsEntry)) {
-          continue;
-        }
-        ChannelSftp.LsEntry subEntry = (ChannelSftp.LsEntry) obj;
-        recursiveSFTPCopy(channel, fileSystem, prefixPath.resolve(entry.getFilename()),
-                          new Path(destinationPath, entry.getFilename()), filesCopied, subEntry);
-      }
-    } else if (entry.getAttrs().isReg()) {
-      Path qualifiedDestinationPath = fileSystem.makeQualified(new Path(destinationPath, entry.getFilename()));
-      if (config.getExtractZipFiles() && entry.getFilename().endsWith(".zip")) {
-        LOG.debug("Downloading zip {} to {}", entry.getFilename(), qualifiedDestinationPath);
-        copyJschZip(channel.get(getLongPath(prefixPath, entry.getFilename())), fileSystem, qualifiedDestinationPath);
-      } else {
-        LOG.debug("Downloading {} to {}", entry.getFilename(), qualifiedDestinationPath.toString());
-        try (OutputStream output = fileSystem.create(qualifiedDestinationPath)) {
-          InputStream is = channel.get(getLongPath(prefixPath, entry.getFilename()));
-          ByteStreams.copy(is, output);
-        }
-      }
-      filesCopied.add(getLongPath(prefixPath, entry.getFilename()));
-    }
   }
 
   private void copyJschZip(InputStream is, FileSystem fs, Path destination) throws IOException {
@@ -252,4 +294,33 @@ public class SFTPCopyAction extends Action {
       }
     }
   }
+
+  /**
+   * A regular file on the SFTP server along with its destination on the file system.
+   */
+  private static final class FileToCopy {
+    private final RemoteFile file;
+    private final Path destination;
+
+    FileToCopy(RemoteFile file, Path destination) {
+      this.file = file;
+      this.destination = destination;
+    }
+
+    String getRemotePath() {
+      return file.getPath();
+    }
+
+    String getFileName() {
+      return file.getName();
+    }
+
+    Path getDestination() {
+      return destination;
+    }
+
+    long getSize() {
+      return file.getSize();
+    }
+  }
 }
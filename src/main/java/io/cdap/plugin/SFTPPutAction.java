@@ -16,6 +16,10 @@
 
 package io.cdap.plugin;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.hash.Hashing;
+import com.google.common.hash.HashingInputStream;
+import com.google.common.io.ByteStreams;
 import com.jcraft.jsch.SftpATTRS;
 import io.cdap.cdap.api.annotation.Description;
 import io.cdap.cdap.api.annotation.Macro;
@@ -23,11 +27,15 @@ import io.cdap.cdap.api.annotation.Name;
 import io.cdap.cdap.api.annotation.Plugin;
 import io.cdap.cdap.etl.api.action.Action;
 import io.cdap.cdap.etl.api.action.ActionContext;
+import io.cdap.plugin.common.RemoteFile;
 import io.cdap.plugin.common.SFTPActionConfig;
 import io.cdap.plugin.common.SFTPConnector;
 import com.jcraft.jsch.ChannelSftp;
 import com.jcraft.jsch.SftpException;
 import io.cdap.plugin.common.SFTPConstants;
+import io.cdap.plugin.common.SFTPRemoteFileLister;
+import io.cdap.plugin.common.TransferProgress;
+import io.cdap.plugin.common.TransferScheduler;
 import java.io.IOException;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileStatus;
@@ -37,6 +45,13 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.InputStream;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.annotation.Nullable;
 
 /**
@@ -47,6 +62,12 @@ import javax.annotation.Nullable;
 public class SFTPPutAction extends Action {
   private static final Logger LOG = LoggerFactory.getLogger(SFTPPutAction.class);
 
+  private static final String UPLOADED_COUNT = "sftp.put.uploaded.count";
+  private static final String SKIPPED_COUNT = "sftp.put.skipped.count";
+  private static final String FAILED_COUNT = "sftp.put.failed.count";
+  private static final String TRANSFERRED_BYTES = "sftp.put.transferred.bytes";
+  private static final String TOTAL_BYTES = "sftp.put.total.bytes";
+
   private SFTPPutActionConfig config;
 
   /**
@@ -67,6 +88,33 @@ public class SFTPPutAction extends Action {
     @Macro
     public String fileNameRegex;
 
+    @Description("Number of sftp channels used to upload files concurrently over the SSH connection. " +
+      "Files are uploaded largest first. Defaults to 1.")
+    @Nullable
+    @Macro
+    public Integer numTransferChannels;
+
+    @Description("Boolean flag to determine whether to upload only the files that are not present in the " +
+      "destination directory or that changed since they were last uploaded. Defaults to 'false'.")
+    @Nullable
+    public Boolean syncMode;
+
+    @Description("Boolean flag to determine whether, in sync mode, files of the same size are compared by their MD5 " +
+      "checksum instead of their modification time. Requires shell access with 'md5sum' on the SFTP server. " +
+      "Defaults to 'false'.")
+    @Nullable
+    public Boolean compareChecksum;
+
+    @Description("Boolean flag to determine whether the modification time of uploaded files is set to the " +
+      "modification time of the source files. Defaults to 'false'.")
+    @Nullable
+    public Boolean preserveModificationTime;
+
+    @Description("Boolean flag to determine if execution should continue if there is an error while uploading " +
+      "any file. Defaults to 'false'.")
+    @Nullable
+    public Boolean continueOnError;
+
     public String getSrcPath() {
       return srcPath;
     }
@@ -78,6 +126,41 @@ public class SFTPPutAction extends Action {
     public String getFileNameRegex() {
       return (fileNameRegex != null) ? fileNameRegex : ".*";
     }
+
+    public int getNumTransferChannels() {
+      if (numTransferChannels == null) {
+        return 1;
+      }
+      if (numTransferChannels < 1) {
+        throw new IllegalArgumentException(
+          String.format("Number of transfer channels must be at least 1, but was %d.", numTransferChannels));
+      }
+      return numTransferChannels;
+    }
+
+    public boolean getSyncMode() {
+      return syncMode != null && syncMode;
+    }
+
+    public boolean getCompareChecksum() {
+      return compareChecksum != null && compareChecksum;
+    }
+
+    public boolean getPreserveModificationTime() {
+      return preserveModificationTime != null && preserveModificationTime;
+    }
+
+    public boolean getContinueOnError() {
+      return continueOnError != null && continueOnError;
+    }
+  }
+
+  /**
+   * Computes the checksum of a file, which may be null if it cannot be computed.
+   */
+  interface ChecksumSupplier {
+    @Nullable
+    String get() throws IOException;
   }
 
   @Override
@@ -96,7 +179,7 @@ public class SFTPPutAction extends Action {
         sftpConnector = new SFTPConnector(config.getHost(), config.getPort(),
           config.getUserName(), config.getPassword(), config.getSSHProperties());
       }
-      putSFTPFiles(fileSystem, source, sftpConnector);
+      putSFTPFiles(fileSystem, source, sftpConnector, context);
     } catch (Exception e) {
       throw new RuntimeException(String.format("Error occurred while connecting to SFTP Server %s %s", e.getMessage(), e));
     } finally {
@@ -106,8 +189,8 @@ public class SFTPPutAction extends Action {
     }
   }
 
-  private void putSFTPFiles(FileSystem fileSystem, Path source, SFTPConnector sftp)
-    throws SftpException, IOException {
+  private void putSFTPFiles(FileSystem fileSystem, Path source, SFTPConnector sftp,
+                            ActionContext context) throws Exception {
     ChannelSftp channel = sftp.getSftpChannel();
     SftpATTRS attrs = null;
 
@@ -122,16 +205,140 @@ public class SFTPPutAction extends Action {
       LOG.info(String.format("Creating Directory %s", config.getDestDirectory()));
       channel.mkdir(config.getDestDirectory());
     }
-    channel.cd(config.getDestDirectory());
     // Filter out only the files to copy
     FileStatus[] filesToCopy = fileSystem.listStatus(source, path -> {
       String fileName = path.getName();
       return fileName.matches(config.getFileNameRegex());
     });
+
+    List<FileStatus> filesToUpload = new ArrayList<>();
+    int skipped = 0;
+    Map<String, RemoteFile> remoteFiles = config.getSyncMode() ? listRemoteFiles(channel) : new HashMap<>();
     for (FileStatus file : filesToCopy) {
-      Path filePath = file.getPath();
-      try (InputStream inputStream = fileSystem.open(filePath)) {
-        channel.put(inputStream, filePath.getName());
+      RemoteFile remoteFile = remoteFiles.get(file.getPath().getName());
+      if (remoteFile != null && isUnchanged(fileSystem, sftp, file, remoteFile)) {
+        LOG.debug("Skipping {} since it is unchanged on the SFTP server.", file.getPath());
+        skipped++;
+        continue;
+      }
+      filesToUpload.add(file);
+    }
+
+    AtomicInteger uploaded = new AtomicInteger();
+    AtomicInteger failed = new AtomicInteger();
+    TransferProgress progress = TransferProgress.of(filesToUpload, FileStatus::getLen);
+    try {
+      // Resolve the destination per file instead of using 'cd', since each sftp channel has its own working directory
+      TransferScheduler<FileStatus> scheduler = new TransferScheduler<>(sftp, config.getNumTransferChannels());
+      scheduler.run(filesToUpload, FileStatus::getLen, progress, (sftpChannel, file) -> {
+        try {
+          putFile(sftpChannel, fileSystem, file);
+          uploaded.incrementAndGet();
+          return true;
+        } catch (Exception e) {
+          failed.incrementAndGet();
+          if (!config.getContinueOnError()) {
+            throw e;
+          }
+          LOG.warn("Error uploading file {}.", file.getPath(), e);
+          return false;
+        }
+      });
+    } finally {
+      context.getArguments().set(UPLOADED_COUNT, String.valueOf(uploaded.get()));
+      context.getArguments().set(SKIPPED_COUNT, String.valueOf(skipped));
+      context.getArguments().set(FAILED_COUNT, String.valueOf(failed.get()));
+      context.getArguments().set(TRANSFERRED_BYTES, String.valueOf(progress.getBytesTransferred()));
+      context.getArguments().set(TOTAL_BYTES, String.valueOf(progress.getTotalBytes()));
+      LOG.info("Uploaded {} files, skipped {} unchanged files, failed to upload {} files.",
+               uploaded.get(), skipped, failed.get());
+    }
+  }
+
+  /**
+   * List the files that are already present in the destination directory, by name.
+   */
+  private Map<String, RemoteFile> listRemoteFiles(ChannelSftp channel) throws Exception {
+    Map<String, RemoteFile> remoteFiles = new HashMap<>();
+    new SFTPRemoteFileLister(channel).list(config.getDestDirectory(), file -> {
+      if (!file.isDirectory()) {
+        remoteFiles.put(file.getName(), file);
+      }
+      // Only the destination directory itself is synced
+      return false;
+    });
+    return remoteFiles;
+  }
+
+  private boolean isUnchanged(FileSystem fileSystem, SFTPConnector sftp, FileStatus file, RemoteFile remoteFile)
+    throws IOException {
+    return isUnchanged(file.getLen(), file.getModificationTime(), remoteFile, config.getCompareChecksum(),
+                       () -> getChecksum(fileSystem, file.getPath()),
+                       () -> getRemoteChecksum(sftp, remoteFile.getPath()));
+  }
+
+  /**
+   * A file is unchanged if the remote copy has the same size, and either the same checksum or, when checksums are
+   * not compared, a modification time that is not older than that of the source file. Remote modification times
+   * only have a precision of seconds.
+   */
+  @VisibleForTesting
+  static boolean isUnchanged(long length, long modificationTimeMillis, RemoteFile remoteFile,
+                             boolean compareChecksum, ChecksumSupplier checksum,
+                             ChecksumSupplier remoteChecksum) throws IOException {
+    if (length != remoteFile.getSize()) {
+      return false;
+    }
+    if (compareChecksum) {
+      String remote = remoteChecksum.get();
+      return remote != null && remote.equals(checksum.get());
+    }
+    return remoteFile.getModificationTime() >= TimeUnit.MILLISECONDS.toSeconds(modificationTimeMillis);
+  }
+
+  private String getChecksum(FileSystem fileSystem, Path filePath) throws IOException {
+    try (HashingInputStream inputStream = new HashingInputStream(Hashing.md5(), fileSystem.open(filePath))) {
+      ByteStreams.exhaust(inputStream);
+      return inputStream.hash().toString();
+    }
+  }
+
+  @Nullable
+  private String getRemoteChecksum(SFTPConnector sftp, String remotePath) {
+    try {
+      // Read the file from standard input, so that the output does not contain the escaped file name
+      return parseChecksum(sftp.execute("md5sum < " + SFTPConnector.quote(remotePath)));
+    } catch (Exception e) {
+      LOG.debug("Unable to compute checksum of {} on the SFTP server, it will be uploaded: {}",
+                remotePath, e.getMessage());
+      return null;
+    }
+  }
+
+  /**
+   * Parse the output of 'md5sum'.
+   *
+   * @return the MD5 checksum in lower case hex digits, or null if the output does not start with one
+   */
+  @VisibleForTesting
+  @Nullable
+  static String parseChecksum(String output) {
+    String checksum = output.trim().split("\\s", 2)[0];
+    return checksum.matches("[0-9a-f]{32}") ? checksum : null;
+  }
+
+  private void putFile(ChannelSftp channel, FileSystem fileSystem, FileStatus file)
+    throws SftpException, IOException {
+    Path filePath = file.getPath();
+    String remotePath = Paths.get(config.getDestDirectory()).resolve(filePath.getName()).toString();
+    try (InputStream inputStream = fileSystem.open(filePath)) {
+      channel.put(inputStream, remotePath);
+    }
+    if (config.getPreserveModificationTime()) {
+      try {
+        channel.setMtime(remotePath, (int) TimeUnit.MILLISECONDS.toSeconds(file.getModificationTime()));
+      } catch (SftpException e) {
+        LOG.warn("Uploaded file {} but failed to set its modification time.", remotePath, e);
       }
     }
   }
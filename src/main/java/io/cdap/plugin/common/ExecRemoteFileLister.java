@@ -0,0 +1,229 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.common;
+
+import com.jcraft.jsch.ChannelExec;
+import com.jcraft.jsch.JSchException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link RemoteFileLister} that lists the whole directory tree by running a single 'find' command on an exec
+ * channel of the SSH session, instead of one sftp 'ls' round trip per directory. The output of the command is
+ * parsed as it streams in.
+ * <p>
+ * The command first prints a sentinel record. Servers that do not permit shell access either refuse the exec
+ * channel, exit without printing the sentinel or, with 'ForceCommand internal-sftp', run sftp-server instead of the
+ * command. Servers without a 'find' supporting '-printf' fail the command before printing any file. In all of these
+ * cases, and if the command prints nothing for 30 seconds, the listing falls back to {@link SFTPRemoteFileLister}.
+ * <p>
+ * Directories skipped by the visitor are still walked by 'find', their content is only dropped on this side. Errors
+ * reading directories under a skipped directory are therefore ignored, as the sftp listing never reads them.
+ */
+public class ExecRemoteFileLister implements RemoteFileLister {
+  private static final Logger LOG = LoggerFactory.getLogger(ExecRemoteFileLister.class);
+  private static final String SENTINEL = "OK";
+  private static final long READ_TIMEOUT_MILLIS = 30000;
+  private final SFTPConnector connector;
+
+  public ExecRemoteFileLister(SFTPConnector connector) {
+    this.connector = connector;
+  }
+
+  @Override
+  public void list(String directory, Visitor visitor) throws Exception {
+    ByteArrayOutputStream error = new ByteArrayOutputStream();
+    ChannelExec channel = null;
+    InputStream output;
+    boolean supported;
+    try {
+      channel = connector.openExecChannel(getFindCommand(directory));
+      // Send EOF on stdin right away, a server running sftp-server instead of the command would wait for input.
+      channel.setInputStream(new ByteArrayInputStream(new byte[0]));
+      channel.setErrStream(error);
+      output = new TimeoutChannelInputStream(channel.getInputStream(), channel, READ_TIMEOUT_MILLIS);
+      channel.connect();
+      supported = readSentinel(output);
+    } catch (JSchException | IOException e) {
+      LOG.debug("Unable to run command on exec channel.", e);
+      supported = false;
+      output = null;
+    }
+    if (!supported) {
+      if (channel != null) {
+        channel.disconnect();
+      }
+      LOG.info("Server does not run commands on exec channels, falling back to sftp listing of directory {}.",
+               directory);
+      new SFTPRemoteFileLister(connector.getSftpChannel()).list(directory, visitor);
+      return;
+    }
+
+    int filesListed;
+    int exitStatus;
+    List<String> skippedDirectories = new ArrayList<>();
+    try {
+      filesListed = parse(Paths.get(directory), output, visitor, skippedDirectories);
+      exitStatus = connector.waitForExitStatus(channel);
+    } finally {
+      channel.disconnect();
+    }
+    if (exitStatus == 0) {
+      LOG.debug("Listed {} files under directory {} with exec channel.", filesListed, directory);
+      return;
+    }
+    String message = new String(error.toByteArray(), StandardCharsets.UTF_8).trim();
+    if (filesListed == 0) {
+      LOG.info("Listing directory {} with exec channel failed with exit status {}, falling back to sftp listing: {}",
+               directory, exitStatus, message);
+      new SFTPRemoteFileLister(connector.getSftpChannel()).list(directory, visitor);
+      return;
+    }
+    if (isUnderSkippedDirectories(message, directory, skippedDirectories)) {
+      LOG.debug("Ignoring errors listing skipped directories under {}: {}", directory, message);
+      return;
+    }
+    throw new IOException(String.format("Listing directory %s failed with exit status %d: %s",
+                                        directory, exitStatus, message));
+  }
+
+  /**
+   * Prints the sentinel record, then one NUL terminated record per regular file or directory: type, size,
+   * modification time and the path relative to the listed directory. NUL is the only character that cannot appear
+   * in a file name. '-H' follows the directory if it is a symbolic link, like sftp 'ls' does, and 'LC_ALL=C' keeps
+   * error messages parseable.
+   */
+  static String getFindCommand(String directory) {
+    return "printf '" + SENTINEL + "\\0'; LC_ALL=C find -H " + SFTPConnector.quote(directory) +
+      " -mindepth 1 \\( -type d -o -type f \\) -printf '%y %s %T@ %P\\0'";
+  }
+
+  /**
+   * Read the NUL terminated sentinel record at the start of the output.
+   *
+   * @return whether the output started with the sentinel, meaning that the server ran the command
+   */
+  static boolean readSentinel(InputStream output) throws IOException {
+    StringBuilder record = new StringBuilder();
+    int b;
+    while ((b = output.read()) > 0 && record.length() <= SENTINEL.length()) {
+      record.append((char) b);
+    }
+    return b == 0 && SENTINEL.contentEquals(record);
+  }
+
+  /**
+   * Parse the NUL terminated records printed by the find command and pass them to the visitor. The relative paths
+   * of the directories skipped by the visitor, ending with '/', are added to the given list.
+   *
+   * @return number of records in the output, including the ones under skipped directories
+   */
+  static int parse(Path directory, InputStream output, Visitor visitor,
+                   List<String> skippedDirectories) throws Exception {
+    int filesListed = 0;
+    // The output is depth first, so the content of a skipped directory directly follows the directory itself.
+    String skippedDirectory = null;
+    ByteArrayOutputStream record = new ByteArrayOutputStream();
+    try (InputStream is = new BufferedInputStream(output)) {
+      int b;
+      while ((b = is.read()) != -1) {
+        if (b != 0) {
+          record.write(b);
+          continue;
+        }
+        RemoteFile file = parseRecord(directory, new String(record.toByteArray(), StandardCharsets.UTF_8));
+        record.reset();
+        filesListed++;
+        if (skippedDirectory != null && file.getRelativePath().startsWith(skippedDirectory)) {
+          continue;
+        }
+        skippedDirectory = null;
+        if (!visitor.visit(file) && file.isDirectory()) {
+          skippedDirectory = file.getRelativePath() + "/";
+          skippedDirectories.add(skippedDirectory);
+        }
+      }
+    }
+    if (record.size() > 0) {
+      throw new IOException(String.format("Listing output ended with an incomplete record '%s'.",
+                                          new String(record.toByteArray(), StandardCharsets.UTF_8)));
+    }
+    return filesListed;
+  }
+
+  /**
+   * Whether the given error output of the find command only consists of permission errors on directories that are
+   * skipped or under a skipped directory.
+   */
+  static boolean isUnderSkippedDirectories(String errors, String directory, List<String> skippedDirectories) {
+    if (errors.trim().isEmpty()) {
+      return false;
+    }
+    String prefix = "find: '";
+    String suffix = "': Permission denied";
+    for (String line : errors.split("\n")) {
+      if (line.trim().isEmpty()) {
+        continue;
+      }
+      if (!line.startsWith(prefix) || !line.endsWith(suffix)) {
+        return false;
+      }
+      String path = line.substring(prefix.length(), line.length() - suffix.length());
+      if (!path.startsWith(directory)) {
+        return false;
+      }
+      String relativePath = path.substring(directory.length());
+      if (!directory.endsWith("/") && !relativePath.startsWith("/")) {
+        return false;
+      }
+      relativePath = relativePath.replaceFirst("^/+", "") + "/";
+      if (skippedDirectories.stream().noneMatch(relativePath::startsWith)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  static RemoteFile parseRecord(Path directory, String record) throws IOException {
+    int sizeEnd = record.indexOf(' ', 2);
+    int timeEnd = sizeEnd < 0 ? -1 : record.indexOf(' ', sizeEnd + 1);
+    if (record.length() < 2 || record.charAt(1) != ' ' || timeEnd < 0) {
+      throw new IOException(String.format("Unable to parse listing output '%s'.", record));
+    }
+    String time = record.substring(sizeEnd + 1, timeEnd);
+    int fraction = time.indexOf('.');
+    String relativePath = record.substring(timeEnd + 1);
+    try {
+      return new RemoteFile(directory.resolve(relativePath).toString(), relativePath, record.charAt(0) == 'd',
+                            Long.parseLong(record.substring(2, sizeEnd)),
+                            Long.parseLong(fraction < 0 ? time : time.substring(0, fraction)));
+    } catch (NumberFormatException e) {
+      throw new IOException(String.format("Unable to parse listing output '%s'.", record), e);
+    }
+  }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.common;
+
+/**
+ * A regular file or directory on the SFTP server, as returned by a {@link RemoteFileLister}.
+ */
+public class RemoteFile {
+  private final String path;
+  private final String relativePath;
+  private final String name;
+  private final boolean directory;
+  private final long size;
+  private final long modificationTime;
+
+  /**
+   * @param path full path of the file on the SFTP server
+   * @param relativePath path of the file relative to the directory being listed, separated by '/'
+   * @param directory whether the file is a directory, otherwise it is a regular file
+   * @param size size of the file in bytes
+   * @param modificationTime last modification time of the file in seconds since the epoch
+   */
+  public RemoteFile(String path, String relativePath, boolean directory, long size, long modificationTime) {
+    this.path = path;
+    this.relativePath = relativePath;
+    this.name = relativePath.substring(relativePath.lastIndexOf('/') + 1);
+    this.directory = directory;
+    this.size = size;
+    this.modificationTime = modificationTime;
+  }
+
+  public String getPath() {
+    return path;
+  }
+
+  public String getRelativePath() {
+    return relativePath;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public boolean isDirectory() {
+    return directory;
+  }
+
+  public long getSize() {
+    return size;
+  }
+
+  public long getModificationTime() {
+    return modificationTime;
+  }
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.common;
+
+/**
+ * Recursively lists the regular files and directories under a directory on the SFTP server.
+ */
+public interface RemoteFileLister {
+
+  /**
+   * Receives the listed files one at a time, so that the listing never has to be held in memory.
+   */
+  interface Visitor {
+
+    /**
+     * Called for every regular file and directory. A directory is always visited before its content.
+     *
+     * @return {@code false} to skip the content of a directory, {@code true} otherwise
+     */
+    boolean visit(RemoteFile file) throws Exception;
+  }
+
+  /**
+   * List all regular files and directories under the given directory, excluding the directory itself.
+   */
+  void list(String directory, Visitor visitor) throws Exception;
+}
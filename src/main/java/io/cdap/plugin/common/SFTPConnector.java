@@ -16,13 +16,22 @@
 
 package io.cdap.plugin.common;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.io.ByteStreams;
 import com.jcraft.jsch.Channel;
+import com.jcraft.jsch.ChannelExec;
 import com.jcraft.jsch.ChannelSftp;
 import com.jcraft.jsch.JSch;
+import com.jcraft.jsch.JSchException;
 import com.jcraft.jsch.Session;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
 import java.util.Properties;
 
@@ -31,9 +40,16 @@ import java.util.Properties;
  */
 public class SFTPConnector implements AutoCloseable {
   private static final Logger LOG = LoggerFactory.getLogger(SFTPConnector.class);
+  private static final long EXIT_STATUS_TIMEOUT_MILLIS = 30000;
   private final Session session;
   private final Channel channel;
 
+  @VisibleForTesting
+  SFTPConnector(Session session, Channel channel) {
+    this.session = session;
+    this.channel = channel;
+  }
+
   //Connector Object to be used for Auth with Password
   public SFTPConnector(String host, int port, String userName, String password, Map<String, String> sessionProperties)
     throws Exception {
@@ -74,6 +90,73 @@ public class SFTPConnector implements AutoCloseable {
     return (ChannelSftp) channel;
   }
 
+  /**
+   * Open an additional sftp channel on the established session, so that several files can be transferred
+   * concurrently over the same SSH connection. The caller is responsible for disconnecting the returned channel.
+   */
+  public ChannelSftp openSftpChannel() throws JSchException {
+    Channel sftpChannel = session.openChannel(SFTPConstants.SFTP);
+    sftpChannel.connect();
+    return (ChannelSftp) sftpChannel;
+  }
+
+  /**
+   * Open an exec channel on the established session to run the given command. The channel is returned
+   * unconnected, so that its streams can be set up before the command starts.
+   */
+  public ChannelExec openExecChannel(String command) throws JSchException {
+    ChannelExec execChannel = (ChannelExec) session.openChannel(SFTPConstants.EXEC);
+    execChannel.setCommand(command);
+    return execChannel;
+  }
+
+  /**
+   * Run the given command on an exec channel and return its standard output.
+   *
+   * @throws IOException if the command exits with a non-zero status, or prints nothing for 30 seconds
+   */
+  public String execute(String command) throws JSchException, IOException, InterruptedException {
+    ByteArrayOutputStream error = new ByteArrayOutputStream();
+    ChannelExec execChannel = openExecChannel(command);
+    try {
+      // Send EOF on stdin right away, a server running sftp-server instead of the command would wait for input.
+      execChannel.setInputStream(new ByteArrayInputStream(new byte[0]));
+      execChannel.setErrStream(error);
+      InputStream is = new TimeoutChannelInputStream(execChannel.getInputStream(), execChannel,
+                                                     EXIT_STATUS_TIMEOUT_MILLIS);
+      execChannel.connect();
+      String output = new String(ByteStreams.toByteArray(is), StandardCharsets.UTF_8);
+      int exitStatus = waitForExitStatus(execChannel);
+      if (exitStatus != 0) {
+        throw new IOException(String.format("Command failed with exit status %d: %s", exitStatus,
+                                            new String(error.toByteArray(), StandardCharsets.UTF_8).trim()));
+      }
+      return output;
+    } finally {
+      execChannel.disconnect();
+    }
+  }
+
+  /**
+   * Wait for the command running on the given exec channel to finish, once its output has been consumed.
+   *
+   * @return exit status of the command, or -1 if it did not finish in time
+   */
+  public int waitForExitStatus(ChannelExec execChannel) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + EXIT_STATUS_TIMEOUT_MILLIS;
+    while (!execChannel.isClosed() && System.currentTimeMillis() < deadline) {
+      Thread.sleep(50);
+    }
+    return execChannel.getExitStatus();
+  }
+
+  /**
+   * Quote the given value so that it is passed as a single argument to a command run on an exec channel.
+   */
+  public static String quote(String value) {
+    return "'" + value.replace("'", "'\\''") + "'";
+  }
+
   @Override
   public void close() throws Exception {
     LOG.info("Closing SFTP session.");
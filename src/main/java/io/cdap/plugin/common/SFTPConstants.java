@@ -23,4 +23,7 @@ package io.cdap.plugin.common;
 public final class SFTPConstants {
   public static final String PRIVATE_KEY_SELECT = "privatekey-select";
   public static final String SFTP = "sftp";
+  public static final String EXEC = "exec";
+  public static final String LISTING_STRATEGY_SFTP = "sftp";
+  public static final String LISTING_STRATEGY_EXEC = "exec";
 }
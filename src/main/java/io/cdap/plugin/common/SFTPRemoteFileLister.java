@@ -0,0 +1,63 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.common;
+
+import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.SftpATTRS;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Vector;
+
+/**
+ * {@link RemoteFileLister} that lists every directory with an sftp 'ls' request, which costs one round trip per
+ * directory.
+ */
+public class SFTPRemoteFileLister implements RemoteFileLister {
+  private final ChannelSftp channel;
+
+  public SFTPRemoteFileLister(ChannelSftp channel) {
+    this.channel = channel;
+  }
+
+  @Override
+  public void list(String directory, Visitor visitor) throws Exception {
+    list(Paths.get(directory), "", visitor);
+  }
+
+  private void list(Path directory, String relativeDirectory, Visitor visitor) throws Exception {
+    Vector entries = channel.ls(directory.toString());
+    for (Object obj : entries) {
+      if (!(obj instanceof ChannelSftp.LsEntry)) {
+        continue;
+      }
+      ChannelSftp.LsEntry entry = (ChannelSftp.LsEntry) obj;
+      String fileName = entry.getFilename();
+      SftpATTRS attrs = entry.getAttrs();
+      if (".".equals(fileName) || "..".equals(fileName) || !(attrs.isDir() || attrs.isReg())) {
+        // ignore "." and ".." files and anything that is neither a regular file nor a directory
+        continue;
+      }
+      String relativePath = relativeDirectory.isEmpty() ? fileName : relativeDirectory + "/" + fileName;
+      RemoteFile file = new RemoteFile(directory.resolve(fileName).toString(), relativePath, attrs.isDir(),
+                                       attrs.getSize(), Integer.toUnsignedLong(attrs.getMTime()));
+      if (visitor.visit(file) && file.isDirectory()) {
+        list(directory.resolve(fileName), relativePath, visitor);
+      }
+    }
+  }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.common;
+
+import com.jcraft.jsch.Channel;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+
+/**
+ * Output of a command running on an exec channel, which fails reads that wait longer than the given timeout for
+ * data. JSch reads block without a timeout, so a server that never answers would otherwise block forever.
+ */
+class TimeoutChannelInputStream extends FilterInputStream {
+  private final Channel channel;
+  private final long timeoutMillis;
+
+  TimeoutChannelInputStream(InputStream in, Channel channel, long timeoutMillis) {
+    super(in);
+    this.channel = channel;
+    this.timeoutMillis = timeoutMillis;
+  }
+
+  @Override
+  public int read() throws IOException {
+    awaitData();
+    return in.read();
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    awaitData();
+    return in.read(b, off, len);
+  }
+
+  private void awaitData() throws IOException {
+    long deadline = System.currentTimeMillis() + timeoutMillis;
+    while (in.available() == 0 && !channel.isClosed()) {
+      if (System.currentTimeMillis() >= deadline) {
+        throw new SocketTimeoutException(String.format("No output received from the command in %d ms.",
+                                                       timeoutMillis));
+      }
+      try {
+        Thread.sleep(10);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while waiting for output of the command.");
+      }
+    }
+  }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.common;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToLongFunction;
+
+/**
+ * Tracks the progress of a set of file transfers whose total size is known upfront. The estimated time remaining
+ * is derived from the throughput observed so far.
+ */
+public class TransferProgress {
+  private static final Logger LOG = LoggerFactory.getLogger(TransferProgress.class);
+  private final int totalFiles;
+  private final long totalBytes;
+  private final long startTime;
+  private final AtomicInteger filesTransferred = new AtomicInteger();
+  private final AtomicLong bytesTransferred = new AtomicLong();
+  private final AtomicInteger lastReportedPercent = new AtomicInteger(-1);
+
+  /**
+   * Create the progress of transferring all the given files.
+   */
+  public static <T> TransferProgress of(List<T> files, ToLongFunction<T> sizeOf) {
+    return new TransferProgress(files.size(), files.stream().mapToLong(sizeOf).sum());
+  }
+
+  public TransferProgress(int totalFiles, long totalBytes) {
+    this.totalFiles = totalFiles;
+    this.totalBytes = totalBytes;
+    this.startTime = System.currentTimeMillis();
+    LOG.info("Transferring {} files, {} bytes in total.", totalFiles, totalBytes);
+  }
+
+  /**
+   * Record that a file of the given size has been transferred. Progress is logged every time the completed
+   * percentage moves forward.
+   */
+  public void fileTransferred(long bytes) {
+    int files = filesTransferred.incrementAndGet();
+    long transferred = bytesTransferred.addAndGet(bytes);
+    int percent = getPercentComplete(files, transferred);
+    int reported = lastReportedPercent.get();
+    if (percent > reported && lastReportedPercent.compareAndSet(reported, percent)) {
+      LOG.info("Transferred {} of {} files, {} of {} bytes ({}%). Estimated time remaining: {} seconds.",
+               files, totalFiles, transferred, totalBytes, percent,
+               TimeUnit.MILLISECONDS.toSeconds(getEstimatedRemainingMillis()));
+    } else {
+      LOG.debug("Transferred {} of {} files, {} of {} bytes.", files, totalFiles, transferred, totalBytes);
+    }
+  }
+
+  public int getFilesTransferred() {
+    return filesTransferred.get();
+  }
+
+  public long getBytesTransferred() {
+    return bytesTransferred.get();
+  }
+
+  public long getTotalBytes() {
+    return totalBytes;
+  }
+
+  /**
+   * Percentage of the bytes transferred, or of the files transferred if the files are all empty.
+   */
+  public int getPercentComplete() {
+    return getPercentComplete(filesTransferred.get(), bytesTransferred.get());
+  }
+
+  /**
+   * Estimated time in milliseconds until all the bytes are transferred, or -1 if nothing has been transferred yet.
+   * When all the files are empty, the estimate is based on the number of files transferred instead.
+   */
+  public long getEstimatedRemainingMillis() {
+    long transferred = bytesTransferred.get();
+    long elapsed = System.currentTimeMillis() - startTime;
+    if (totalBytes == 0) {
+      int files = filesTransferred.get();
+      if (files >= totalFiles) {
+        return 0;
+      }
+      return files == 0 ? -1 : elapsed * (totalFiles - files) / files;
+    }
+    if (transferred == 0) {
+      return -1;
+    }
+    return (long) (elapsed * ((double) (totalBytes - transferred) / transferred));
+  }
+
+  private int getPercentComplete(int files, long transferred) {
+    if (totalBytes == 0) {
+      return totalFiles == 0 ? 100 : (int) (100L * files / totalFiles);
+    }
+    return (int) (100.0 * transferred / totalBytes);
+  }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.common;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.JSchException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.ToLongFunction;
+
+/**
+ * Schedules file transfers over one or more sftp channels of a {@link SFTPConnector}.
+ * <p>
+ * The size of every file is collected before anything is transferred. Files are then handed out largest first to
+ * whichever channel becomes free next (longest-processing-time-first list scheduling). Large files therefore start
+ * early on their own channel instead of deciding the wall-clock time by starting last, while the remaining channels
+ * keep draining the small files back to back.
+ *
+ * @param <T> type describing a single file to transfer
+ */
+public class TransferScheduler<T> {
+  private static final Logger LOG = LoggerFactory.getLogger(TransferScheduler.class);
+  private final SFTPConnector connector;
+  private final int numChannels;
+
+  /**
+   * Transfers a single file over the given sftp channel.
+   *
+   * @param <T> type describing a single file to transfer
+   */
+  public interface Transfer<T> {
+
+    /**
+     * @return {@code true} if the file was transferred, {@code false} if it failed and the failure was handled
+     */
+    boolean transfer(ChannelSftp channel, T file) throws Exception;
+  }
+
+  public TransferScheduler(SFTPConnector connector, int numChannels) {
+    this.connector = connector;
+    this.numChannels = numChannels;
+  }
+
+  /**
+   * Transfer all the given files and block until they are done. If any transfer fails, no new transfers are
+   * started and the first failure is rethrown once the in-flight transfers have finished.
+   * <p>
+   * The channel of the connector is always used. Additional channels are opened only when more than one channel is
+   * configured, and if the server refuses to open some of them, the files are transferred over the channels that
+   * could be opened.
+   *
+   * @param files files to transfer
+   * @param sizeOf function returning the size in bytes of a file
+   * @param progress progress to record the transferred files in
+   * @param transfer transfers a single file
+   * @throws Exception if any of the transfers fails
+   */
+  public void run(List<T> files, ToLongFunction<T> sizeOf, TransferProgress progress,
+                  Transfer<T> transfer) throws Exception {
+    List<T> ordered = new ArrayList<>(files);
+    ordered.sort(Comparator.comparingLong(sizeOf).reversed());
+    Queue<T> queue = new ConcurrentLinkedQueue<>(ordered);
+    AtomicBoolean failed = new AtomicBoolean();
+
+    List<ChannelSftp> additionalChannels = openAdditionalChannels(Math.min(numChannels, ordered.size()) - 1);
+    try {
+      if (additionalChannels.isEmpty()) {
+        // Use the already established channel on the calling thread, there is nothing to balance.
+        drain(connector.getSftpChannel(), queue, sizeOf, transfer, progress, failed);
+        return;
+      }
+
+      LOG.info("Transferring {} files over {} sftp channels.", ordered.size(), additionalChannels.size() + 1);
+      List<ChannelSftp> channels = new ArrayList<>();
+      channels.add(connector.getSftpChannel());
+      channels.addAll(additionalChannels);
+      ExecutorService executor = Executors.newFixedThreadPool(
+        channels.size(), new ThreadFactoryBuilder().setNameFormat("sftp-transfer-%d").setDaemon(true).build());
+      try {
+        List<Future<Void>> futures = new ArrayList<>();
+        for (ChannelSftp channel : channels) {
+          futures.add(executor.submit(() -> {
+            drain(channel, queue, sizeOf, transfer, progress, failed);
+            return null;
+          }));
+        }
+        Exception failure = null;
+        for (Future<Void> future : futures) {
+          try {
+            future.get();
+          } catch (ExecutionException e) {
+            if (failure == null) {
+              failure = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+            }
+          }
+        }
+        if (failure != null) {
+          throw failure;
+        }
+      } finally {
+        executor.shutdownNow();
+      }
+    } finally {
+      for (ChannelSftp channel : additionalChannels) {
+        try {
+          channel.disconnect();
+        } catch (Throwable t) {
+          LOG.warn("Error while disconnecting sftp channel.", t);
+        }
+      }
+    }
+  }
+
+  /**
+   * Open up to the given number of channels in addition to the channel of the connector. Servers limit the number
+   * of channels per connection, so failing to open a channel only reduces the number of concurrent transfers.
+   */
+  private List<ChannelSftp> openAdditionalChannels(int count) {
+    List<ChannelSftp> channels = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      try {
+        channels.add(connector.openSftpChannel());
+      } catch (JSchException e) {
+        LOG.warn("Unable to open more than {} sftp channels, continuing with the channels already open: {}",
+                 channels.size() + 1, e.getMessage());
+        break;
+      }
+    }
+    return channels;
+  }
+
+  private void drain(ChannelSftp channel, Queue<T> queue, ToLongFunction<T> sizeOf, Transfer<T> transfer,
+                     TransferProgress progress, AtomicBoolean failed) throws Exception {
+    try {
+      T file;
+      while (!failed.get() && (file = queue.poll()) != null) {
+        if (transfer.transfer(channel, file)) {
+          progress.fileTransferred(sizeOf.applyAsLong(file));
+        }
+      }
+    } catch (Exception e) {
+      failed.set(true);
+      throw e;
+    }
+  }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin;
+
+import io.cdap.plugin.common.RemoteFile;
+import junit.framework.TestCase;
+
+/**
+ * Tests for deciding which files {@link SFTPPutAction} skips in sync mode.
+ */
+public class SFTPPutActionTest extends TestCase {
+  private static final String CHECKSUM = "d41d8cd98f00b204e9800998ecf8427e";
+  private static final SFTPPutAction.ChecksumSupplier NOT_CALLED = () -> {
+    fail("Checksum should not be computed");
+    return null;
+  };
+
+  public void testSizeMismatch() throws Exception {
+    RemoteFile remote = remoteFile(100, 2000);
+    assertFalse(SFTPPutAction.isUnchanged(101, 1000000L, remote, false, NOT_CALLED, NOT_CALLED));
+    assertFalse(SFTPPutAction.isUnchanged(101, 1000000L, remote, true, NOT_CALLED, NOT_CALLED));
+  }
+
+  public void testModificationTime() throws Exception {
+    RemoteFile remote = remoteFile(100, 1000);
+    // Same second
+    assertTrue(SFTPPutAction.isUnchanged(100, 1000000L, remote, false, NOT_CALLED, NOT_CALLED));
+    // Sub-second precision of the source is truncated
+    assertTrue(SFTPPutAction.isUnchanged(100, 1000999L, remote, false, NOT_CALLED, NOT_CALLED));
+    // Remote copy is newer
+    assertTrue(SFTPPutAction.isUnchanged(100, 999000L, remote, false, NOT_CALLED, NOT_CALLED));
+    // Source is newer
+    assertFalse(SFTPPutAction.isUnchanged(100, 1001000L, remote, false, NOT_CALLED, NOT_CALLED));
+  }
+
+  public void testChecksum() throws Exception {
+    // Modification times are ignored when comparing checksums
+    RemoteFile remote = remoteFile(100, 0);
+    assertTrue(SFTPPutAction.isUnchanged(100, 1000000L, remote, true, () -> CHECKSUM, () -> CHECKSUM));
+    assertFalse(SFTPPutAction.isUnchanged(100, 0L, remote, true, () -> CHECKSUM,
+                                          () -> "0cc175b9c0f1b6a831c399e269772661"));
+    // Unknown remote checksum, the file is uploaded without reading it locally
+    assertFalse(SFTPPutAction.isUnchanged(100, 0L, remote, true, NOT_CALLED, () -> null));
+  }
+
+  public void testParseChecksum() {
+    assertEquals(CHECKSUM, SFTPPutAction.parseChecksum(CHECKSUM + "  -\n"));
+    assertEquals(CHECKSUM, SFTPPutAction.parseChecksum(CHECKSUM));
+    assertNull(SFTPPutAction.parseChecksum(""));
+    assertNull(SFTPPutAction.parseChecksum("This service allows sftp connections only.\n"));
+    assertNull(SFTPPutAction.parseChecksum("d41d8cd98f00b204e9800998ecf8427  -\n"));
+    assertNull(SFTPPutAction.parseChecksum("D41D8CD98F00B204E9800998ECF8427E  -\n"));
+  }
+
+  private static RemoteFile remoteFile(long size, long modificationTime) {
+    return new RemoteFile("/dest/file.txt", "file.txt", false, size, modificationTime);
+  }
+}
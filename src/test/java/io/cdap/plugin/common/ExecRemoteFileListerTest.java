@@ -0,0 +1,154 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.common;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tests for parsing the output of the find command in {@link ExecRemoteFileLister}.
+ */
+public class ExecRemoteFileListerTest extends TestCase {
+
+  public void testParseRecord() throws Exception {
+    RemoteFile file = ExecRemoteFileLister.parseRecord(Paths.get("/src"), "f 1234 1600000000.1234567890 a b/c d.txt");
+    assertEquals("/src/a b/c d.txt", file.getPath());
+    assertEquals("a b/c d.txt", file.getRelativePath());
+    assertEquals("c d.txt", file.getName());
+    assertFalse(file.isDirectory());
+    assertEquals(1234, file.getSize());
+    assertEquals(1600000000L, file.getModificationTime());
+  }
+
+  public void testParseRecordWithoutFraction() throws Exception {
+    RemoteFile file = ExecRemoteFileLister.parseRecord(Paths.get("/src"), "d 4096 1600000000 dir");
+    assertTrue(file.isDirectory());
+    assertEquals("dir", file.getName());
+    assertEquals(1600000000L, file.getModificationTime());
+  }
+
+  public void testParseMalformedRecord() {
+    for (String record : Arrays.asList("", "f", "f 12", "f 12 1600000000", "f12 1600000000 a", "f x 1600000000 a",
+                                       "f 12 time a")) {
+      try {
+        ExecRemoteFileLister.parseRecord(Paths.get("/src"), record);
+        fail("Expected parsing to fail for '" + record + "'");
+      } catch (IOException e) {
+        // expected
+      }
+    }
+  }
+
+  public void testParse() throws Exception {
+    List<String> visited = new ArrayList<>();
+    List<String> skippedDirectories = new ArrayList<>();
+    int filesListed = ExecRemoteFileLister.parse(
+      Paths.get("/src"), output("f 1 1 x.txt", "d 0 1 sub", "f 2 1 sub/y z.txt"),
+      file -> visited.add(file.getRelativePath()), skippedDirectories);
+    assertEquals(3, filesListed);
+    assertEquals(Arrays.asList("x.txt", "sub", "sub/y z.txt"), visited);
+    assertTrue(skippedDirectories.isEmpty());
+  }
+
+  public void testParseSkipsContentOfSkippedDirectories() throws Exception {
+    List<String> visited = new ArrayList<>();
+    List<String> skippedDirectories = new ArrayList<>();
+    int filesListed = ExecRemoteFileLister.parse(
+      Paths.get("/src"),
+      output("d 0 1 a", "d 0 1 a/b", "f 1 1 a/b/c", "f 1 1 a/d", "d 0 1 ab", "f 1 1 ab/e", "d 0 1 f", "f 1 1 f/g"),
+      file -> {
+        visited.add(file.getRelativePath());
+        return !file.getName().equals("a") && !file.getName().equals("f");
+      }, skippedDirectories);
+    assertEquals(8, filesListed);
+    assertEquals(Arrays.asList("a", "ab", "ab/e", "f"), visited);
+    assertEquals(Arrays.asList("a/", "f/"), skippedDirectories);
+  }
+
+  public void testParseIncompleteRecord() throws Exception {
+    byte[] bytes = "f 1 1 x.txt\0f 2 1 y.txt".getBytes(StandardCharsets.UTF_8);
+    List<String> visited = new ArrayList<>();
+    try {
+      ExecRemoteFileLister.parse(Paths.get("/src"), new ByteArrayInputStream(bytes),
+                                 file -> visited.add(file.getRelativePath()), new ArrayList<>());
+      fail("Expected parsing to fail for an incomplete record");
+    } catch (IOException e) {
+      // expected
+    }
+    assertEquals(Collections.singletonList("x.txt"), visited);
+  }
+
+  public void testIsUnderSkippedDirectories() {
+    List<String> skipped = Collections.singletonList("a/");
+    assertTrue(ExecRemoteFileLister.isUnderSkippedDirectories(
+      "find: '/src/a': Permission denied\n", "/src", skipped));
+    assertTrue(ExecRemoteFileLister.isUnderSkippedDirectories(
+      "find: '/src/a/b': Permission denied\nfind: '/src/a/c': Permission denied\n", "/src/", skipped));
+    assertFalse(ExecRemoteFileLister.isUnderSkippedDirectories(
+      "find: '/src/ab': Permission denied\n", "/src", skipped));
+    assertFalse(ExecRemoteFileLister.isUnderSkippedDirectories(
+      "find: '/srca/b': Permission denied\n", "/src", skipped));
+    assertFalse(ExecRemoteFileLister.isUnderSkippedDirectories(
+      "find: '/src/a/b': Input/output error\n", "/src", skipped));
+    assertFalse(ExecRemoteFileLister.isUnderSkippedDirectories("", "/src", skipped));
+  }
+
+  public void testFindCommand() {
+    assertEquals("printf 'OK\\0'; LC_ALL=C find -H '/src/it'\\''s' -mindepth 1 \\( -type d -o -type f \\) " +
+                   "-printf '%y %s %T@ %P\\0'",
+                 ExecRemoteFileLister.getFindCommand("/src/it's"));
+  }
+
+  public void testReadSentinel() throws Exception {
+    assertTrue(ExecRemoteFileLister.readSentinel(output("OK")));
+    InputStream output = output("OK", "f 1 1 x.txt");
+    assertTrue(ExecRemoteFileLister.readSentinel(output));
+    List<String> visited = new ArrayList<>();
+    assertEquals(1, ExecRemoteFileLister.parse(Paths.get("/src"), output,
+                                               file -> visited.add(file.getRelativePath()), new ArrayList<>()));
+    assertEquals(Collections.singletonList("x.txt"), visited);
+  }
+
+  public void testMissingSentinel() throws Exception {
+    // Restricted shells exiting without output
+    assertFalse(ExecRemoteFileLister.readSentinel(output()));
+    // Messages printed instead of running the command
+    assertFalse(ExecRemoteFileLister.readSentinel(new ByteArrayInputStream(
+      "This service allows sftp connections only.\n".getBytes(StandardCharsets.UTF_8))));
+    // Output of a find that does not print the sentinel
+    assertFalse(ExecRemoteFileLister.readSentinel(output("f 1 1 x.txt")));
+    assertFalse(ExecRemoteFileLister.readSentinel(new ByteArrayInputStream("OK".getBytes(StandardCharsets.UTF_8))));
+    assertFalse(ExecRemoteFileLister.readSentinel(output("OKAY")));
+  }
+
+  private static ByteArrayInputStream output(String... records) {
+    StringBuilder builder = new StringBuilder();
+    for (String record : records) {
+      builder.append(record).append('\0');
+    }
+    return new ByteArrayInputStream(builder.toString().getBytes(StandardCharsets.UTF_8));
+  }
+}
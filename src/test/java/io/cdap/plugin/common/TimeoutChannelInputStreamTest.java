@@ -0,0 +1,59 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.common;
+
+import com.jcraft.jsch.ChannelExec;
+import junit.framework.TestCase;
+
+import java.io.ByteArrayInputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.net.SocketTimeoutException;
+
+/**
+ * Tests for {@link TimeoutChannelInputStream}.
+ */
+public class TimeoutChannelInputStreamTest extends TestCase {
+
+  public void testReadsAvailableOutput() throws Exception {
+    TimeoutChannelInputStream is = new TimeoutChannelInputStream(
+      new ByteArrayInputStream(new byte[] {1, 2, 3}), new ChannelExec(), 50);
+    assertEquals(1, is.read());
+    byte[] buffer = new byte[4];
+    assertEquals(2, is.read(buffer, 0, buffer.length));
+    assertEquals(2, buffer[0]);
+    assertEquals(3, buffer[1]);
+  }
+
+  public void testTimeoutWithoutOutput() throws Exception {
+    // The channel is open but the command never writes anything
+    PipedInputStream in = new PipedInputStream(new PipedOutputStream());
+    TimeoutChannelInputStream is = new TimeoutChannelInputStream(in, new ChannelExec(), 50);
+    try {
+      is.read();
+      fail("Expected the read to time out");
+    } catch (SocketTimeoutException e) {
+      // expected
+    }
+    try {
+      is.read(new byte[4], 0, 4);
+      fail("Expected the read to time out");
+    } catch (SocketTimeoutException e) {
+      // expected
+    }
+  }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.common;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link TransferProgress}.
+ */
+public class TransferProgressTest extends TestCase {
+
+  public void testProgress() {
+    TransferProgress progress = new TransferProgress(2, 100);
+    assertEquals(0, progress.getPercentComplete());
+    assertEquals(-1, progress.getEstimatedRemainingMillis());
+
+    progress.fileTransferred(25);
+    assertEquals(25, progress.getPercentComplete());
+    assertTrue(progress.getEstimatedRemainingMillis() >= 0);
+
+    progress.fileTransferred(75);
+    assertEquals(100, progress.getPercentComplete());
+    assertEquals(0, progress.getEstimatedRemainingMillis());
+    assertEquals(2, progress.getFilesTransferred());
+    assertEquals(100, progress.getBytesTransferred());
+  }
+
+  public void testNoFiles() {
+    TransferProgress progress = new TransferProgress(0, 0);
+    assertEquals(100, progress.getPercentComplete());
+    assertEquals(0, progress.getEstimatedRemainingMillis());
+  }
+
+  public void testEmptyFiles() {
+    TransferProgress progress = new TransferProgress(4, 0);
+    assertEquals(0, progress.getPercentComplete());
+    assertEquals(-1, progress.getEstimatedRemainingMillis());
+
+    progress.fileTransferred(0);
+    assertEquals(25, progress.getPercentComplete());
+    assertTrue(progress.getEstimatedRemainingMillis() >= 0);
+
+    progress.fileTransferred(0);
+    progress.fileTransferred(0);
+    progress.fileTransferred(0);
+    assertEquals(100, progress.getPercentComplete());
+    assertEquals(0, progress.getEstimatedRemainingMillis());
+  }
+}
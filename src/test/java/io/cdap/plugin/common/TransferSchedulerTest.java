@@ -0,0 +1,160 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.common;
+
+import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.JSchException;
+import junit.framework.TestCase;
+
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Tests for {@link TransferScheduler}.
+ */
+public class TransferSchedulerTest extends TestCase {
+
+  public void testLargestFirst() throws Exception {
+    FakeConnector connector = new FakeConnector(0);
+    List<Long> files = Arrays.asList(3L, 10L, 1L, 7L);
+    List<Long> transferred = new ArrayList<>();
+    TransferScheduler<Long> scheduler = new TransferScheduler<>(connector, 1);
+    scheduler.run(files, Long::longValue, TransferProgress.of(files, Long::longValue), (channel, file) -> {
+      assertSame(connector.getSftpChannel(), channel);
+      transferred.add(file);
+      return true;
+    });
+    assertEquals(Arrays.asList(10L, 7L, 3L, 1L), transferred);
+    assertEquals(0, connector.openAttempts);
+  }
+
+  public void testContinuesWithFewerChannels() throws Exception {
+    FakeConnector connector = new FakeConnector(1);
+    List<Long> files = Arrays.asList(1L, 2L, 3L, 4L, 5L, 6L);
+    Set<ChannelSftp> channelsUsed = Collections.synchronizedSet(new HashSet<>());
+    TransferProgress progress = TransferProgress.of(files, Long::longValue);
+    new TransferScheduler<Long>(connector, 4).run(files, Long::longValue, progress, (channel, file) -> {
+      channelsUsed.add(channel);
+      return true;
+    });
+    // The first failure to open a channel stops opening more
+    assertEquals(2, connector.openAttempts);
+    assertEquals(1, connector.opened.size());
+    Set<ChannelSftp> available = new HashSet<>(connector.opened);
+    available.add(connector.getSftpChannel());
+    assertTrue(available.containsAll(channelsUsed));
+    assertEquals(6, progress.getFilesTransferred());
+    assertEquals(21, progress.getBytesTransferred());
+  }
+
+  public void testNoTransfersStartAfterFailure() throws Exception {
+    FakeConnector connector = new FakeConnector(0);
+    List<Long> files = Arrays.asList(3L, 5L, 4L);
+    List<Long> attempted = new ArrayList<>();
+    Exception failure = new Exception("failed");
+    TransferProgress progress = TransferProgress.of(files, Long::longValue);
+    try {
+      new TransferScheduler<Long>(connector, 1).run(files, Long::longValue, progress, (channel, file) -> {
+        attempted.add(file);
+        if (file == 4L) {
+          throw failure;
+        }
+        return true;
+      });
+      fail("Expected the transfer failure to be rethrown");
+    } catch (Exception e) {
+      assertSame(failure, e);
+    }
+    assertEquals(Arrays.asList(5L, 4L), attempted);
+    assertEquals(1, progress.getFilesTransferred());
+  }
+
+  public void testFailureRethrownWithMultipleChannels() throws Exception {
+    FakeConnector connector = new FakeConnector(2);
+    List<Long> files = Arrays.asList(1L, 2L, 3L);
+    Exception failure = new Exception("failed");
+    TransferScheduler<Long> scheduler = new TransferScheduler<>(connector, 3);
+    try {
+      scheduler.run(files, Long::longValue, TransferProgress.of(files, Long::longValue), (channel, file) -> {
+        if (file == 3L) {
+          throw failure;
+        }
+        return true;
+      });
+      fail("Expected the transfer failure to be rethrown");
+    } catch (Exception e) {
+      assertSame(failure, e);
+    }
+    assertEquals(2, connector.opened.size());
+  }
+
+  public void testFailedTransfersAreNotCounted() throws Exception {
+    FakeConnector connector = new FakeConnector(0);
+    List<Long> files = Arrays.asList(1L, 2L, 3L);
+    TransferProgress progress = TransferProgress.of(files, Long::longValue);
+    new TransferScheduler<Long>(connector, 1).run(files, Long::longValue, progress, (channel, file) -> file != 2L);
+    assertEquals(2, progress.getFilesTransferred());
+    assertEquals(4, progress.getBytesTransferred());
+    assertEquals(6, progress.getTotalBytes());
+  }
+
+  /**
+   * Connector handing out unconnected channels, which can open only a limited number of additional channels.
+   */
+  private static final class FakeConnector extends SFTPConnector {
+    private final ChannelSftp channel = newChannel();
+    private final int maxOpened;
+    private final List<ChannelSftp> opened = Collections.synchronizedList(new ArrayList<>());
+    private int openAttempts;
+
+    FakeConnector(int maxOpened) {
+      super(null, null);
+      this.maxOpened = maxOpened;
+    }
+
+    @Override
+    public ChannelSftp getSftpChannel() {
+      return channel;
+    }
+
+    @Override
+    public ChannelSftp openSftpChannel() throws JSchException {
+      openAttempts++;
+      if (opened.size() >= maxOpened) {
+        throw new JSchException("channel is not opened.");
+      }
+      ChannelSftp newChannel = newChannel();
+      opened.add(newChannel);
+      return newChannel;
+    }
+
+    private static ChannelSftp newChannel() {
+      try {
+        Constructor<ChannelSftp> constructor = ChannelSftp.class.getDeclaredConstructor();
+        constructor.setAccessible(true);
+        return constructor.newInstance();
+      } catch (ReflectiveOperationException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+  }
+}